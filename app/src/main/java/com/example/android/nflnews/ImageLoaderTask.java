@@ -2,6 +2,11 @@ package com.example.android.nflnews;
 
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
+import android.graphics.Color;
+import android.graphics.drawable.BitmapDrawable;
+import android.graphics.drawable.ColorDrawable;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.TransitionDrawable;
 import android.os.AsyncTask;
 import android.util.Log;
 import android.widget.ImageView;
@@ -11,13 +16,22 @@ import java.io.InputStream;
 // I took the code from this article for this functionality: https://medium
 // .com/@crossphd/android-image-loading-from-a-string-url-6c8290b82c5e
 public class ImageLoaderTask extends AsyncTask<String, Void, Bitmap> {
+    /** How long the downloaded image takes to fade in over its preview colour */
+    private static final int FADE_IN_MILLIS = 200;
+
     ImageView bmImage;
-    public ImageLoaderTask(ImageView bmImage) {
+    NewsItem newsItem;
+    String urldisplay;
+    int previewColor;
+
+    public ImageLoaderTask(ImageView bmImage, NewsItem newsItem) {
         this.bmImage = bmImage;
+        this.newsItem = newsItem;
+        this.previewColor = newsItem.getPreviewColor();
     }
 
     protected Bitmap doInBackground(String... urls) {
-        String urldisplay = urls[0];
+        urldisplay = urls[0];
         Bitmap bmp = null;
         try {
             InputStream in = new java.net.URL(urldisplay).openStream();
@@ -26,9 +40,33 @@ public class ImageLoaderTask extends AsyncTask<String, Void, Bitmap> {
             Log.e("Error", e.getMessage());
             e.printStackTrace();
         }
+        // Work out the preview colour the first time we see this thumbnail and save it, so
+        // the next time the article is shown it has a placeholder before any download.
+        if (bmp != null && previewColor == ThumbnailPreviewStore.NO_PREVIEW) {
+            previewColor = ThumbnailPreviewStore.computePreviewColor(bmp);
+            ThumbnailPreviewStore.putPreviewColor(bmImage.getContext(), urldisplay,
+                    previewColor);
+        }
         return bmp;
     }
     protected void onPostExecute(Bitmap result) {
-        bmImage.setImageBitmap(result);
+        newsItem.setPreviewColor(previewColor);
+
+        // The row may have been recycled for another article while we were downloading.
+        if (result == null || !urldisplay.equals(bmImage.getTag())) {
+            return;
+        }
+
+        long startNanos = System.nanoTime();
+        Drawable placeholder = bmImage.getDrawable();
+        if (placeholder == null) {
+            placeholder = new ColorDrawable(Color.TRANSPARENT);
+        }
+        TransitionDrawable fadeIn = new TransitionDrawable(new Drawable[]{
+                placeholder, new BitmapDrawable(bmImage.getResources(), result)});
+        fadeIn.setCrossFadeEnabled(true);
+        bmImage.setImageDrawable(fadeIn);
+        fadeIn.startTransition(FADE_IN_MILLIS);
+        JankMonitor.recordEvent("setImageDrawable", startNanos);
     }
-}
\ No newline at end of file
+}
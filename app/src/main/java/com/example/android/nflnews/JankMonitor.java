@@ -0,0 +1,281 @@
+package com.example.android.nflnews;
+
+import android.annotation.TargetApi;
+import android.app.Activity;
+import android.os.Build;
+import android.os.Handler;
+import android.os.HandlerThread;
+import android.os.StrictMode;
+import android.util.Log;
+import android.view.Choreographer;
+import android.view.FrameMetrics;
+import android.view.Window;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Watches main thread frame timing for one activity session and attributes slow frames to the
+ * work that ran during them (adapter binds, image callbacks, list rebuilds).
+ *
+ * Code on the main thread reports its work with {@link #recordEvent(String, long)}. Every
+ * Choreographer frame callback closes the previous frame interval: if it took longer than the
+ * display's frame interval the recorded events are logged against it and added to the session
+ * report. On API 24+ the per-stage FrameMetrics of each janky frame are collected as well.
+ */
+public class JankMonitor implements Choreographer.FrameCallback {
+
+    private static final String LOG_TAG = JankMonitor.class.getSimpleName();
+
+    /** Most events we keep for a single frame; anything beyond that is counted but not named */
+    private static final int MAX_EVENTS_PER_FRAME = 64;
+
+    /** The monitor of the resumed activity, or null when nothing is being monitored */
+    private static JankMonitor sActive;
+
+    private final Activity mActivity;
+    private final long mFrameIntervalNanos;
+
+    // Events recorded on the main thread since the last frame callback
+    private final String[] mEventLabels = new String[MAX_EVENTS_PER_FRAME];
+    private final long[] mEventNanos = new long[MAX_EVENTS_PER_FRAME];
+    private int mEventCount;
+
+    private long mLastFrameTimeNanos;
+    private int mFrames;
+    private int mSlowFrames;
+    private int mDroppedFrames;
+    private long mWorstFrameNanos;
+
+    /** Label -> {count, total nanos} of events that ran during slow frames */
+    private final Map<String, long[]> mSlowFrameEvents = new HashMap<>();
+
+    private HandlerThread mMetricsThread;
+    private Window.OnFrameMetricsAvailableListener mMetricsListener;
+    private final FrameStageTotals mStageTotals = new FrameStageTotals();
+
+    public JankMonitor(Activity activity) {
+        mActivity = activity;
+        float refreshRate = activity.getWindowManager().getDefaultDisplay().getRefreshRate();
+        if (refreshRate < 30f) {
+            refreshRate = 60f;
+        }
+        mFrameIntervalNanos = (long) (1e9 / refreshRate);
+    }
+
+    /**
+     * Turns on StrictMode warnings (in the log) for disk and network I/O on the main thread.
+     * They are added on top of the current policy, so the platform's penaltyDeathOnNetwork
+     * still applies and debug builds are never more lenient than release builds.
+     */
+    public static void enableMainThreadIoWarnings() {
+        StrictMode.setThreadPolicy(new StrictMode.ThreadPolicy.Builder(
+                StrictMode.getThreadPolicy())
+                .detectDiskReads()
+                .detectDiskWrites()
+                .detectNetwork()
+                .penaltyLog()
+                .build());
+    }
+
+    /**
+     * Records a piece of main thread work so it can be blamed if the current frame is slow.
+     * Does nothing unless a monitor has been started.
+     *
+     * @param label short name of the work, e.g. "getView"
+     * @param startNanos {@link System#nanoTime()} taken when the work started
+     */
+    public static void recordEvent(String label, long startNanos) {
+        JankMonitor monitor = sActive;
+        if (monitor != null) {
+            monitor.addEvent(label, System.nanoTime() - startNanos);
+        }
+    }
+
+    /**
+     * Starts a new session. Call from onResume().
+     */
+    public void start() {
+        mEventCount = 0;
+        mLastFrameTimeNanos = 0;
+        mFrames = 0;
+        mSlowFrames = 0;
+        mDroppedFrames = 0;
+        mWorstFrameNanos = 0;
+        mSlowFrameEvents.clear();
+        mStageTotals.reset();
+
+        sActive = this;
+        Choreographer.getInstance().postFrameCallback(this);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            startFrameMetrics();
+        }
+    }
+
+    /**
+     * Ends the session and logs its jank report. Call from onPause().
+     */
+    public void stop() {
+        Choreographer.getInstance().removeFrameCallback(this);
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            stopFrameMetrics();
+        }
+        if (sActive == this) {
+            sActive = null;
+        }
+        Log.i(LOG_TAG, getReport());
+    }
+
+    private void addEvent(String label, long nanos) {
+        if (mEventCount < MAX_EVENTS_PER_FRAME) {
+            mEventLabels[mEventCount] = label;
+            mEventNanos[mEventCount] = nanos;
+        }
+        mEventCount++;
+    }
+
+    @Override
+    public void doFrame(long frameTimeNanos) {
+        if (mLastFrameTimeNanos != 0) {
+            long frameNanos = frameTimeNanos - mLastFrameTimeNanos;
+            mFrames++;
+            // Allow half a frame of vsync jitter before calling a frame slow
+            if (frameNanos > mFrameIntervalNanos * 3 / 2) {
+                onSlowFrame(frameNanos);
+            }
+        }
+        mLastFrameTimeNanos = frameTimeNanos;
+        mEventCount = 0;
+        Choreographer.getInstance().postFrameCallback(this);
+    }
+
+    private void onSlowFrame(long frameNanos) {
+        int dropped = (int) (frameNanos / mFrameIntervalNanos) - 1;
+        mSlowFrames++;
+        mDroppedFrames += dropped;
+        mWorstFrameNanos = Math.max(mWorstFrameNanos, frameNanos);
+
+        StringBuilder blame = new StringBuilder();
+        int named = Math.min(mEventCount, MAX_EVENTS_PER_FRAME);
+        for (int i = 0; i < named; i++) {
+            long[] totals = mSlowFrameEvents.get(mEventLabels[i]);
+            if (totals == null) {
+                totals = new long[2];
+                mSlowFrameEvents.put(mEventLabels[i], totals);
+            }
+            totals[0]++;
+            totals[1] += mEventNanos[i];
+            blame.append(String.format(Locale.US, " %s %.1fms", mEventLabels[i],
+                    mEventNanos[i] / 1e6));
+        }
+        if (mEventCount > named) {
+            blame.append(" +").append(mEventCount - named).append(" more");
+        }
+        Log.w(LOG_TAG, String.format(Locale.US, "Slow frame %.1fms (%d dropped):%s",
+                frameNanos / 1e6, dropped, blame.length() > 0 ? blame : " no recorded work"));
+    }
+
+    /**
+     * @return a summary of frames, dropped frames and what ran during slow frames this session
+     */
+    public String getReport() {
+        StringBuilder output = new StringBuilder();
+        output.append(String.format(Locale.US,
+                "Jank report for %s: %d frames, %d slow, %d dropped, worst %.1fms",
+                mActivity.getClass().getSimpleName(), mFrames, mSlowFrames, mDroppedFrames,
+                mWorstFrameNanos / 1e6));
+        for (Map.Entry<String, long[]> entry : mSlowFrameEvents.entrySet()) {
+            long[] totals = entry.getValue();
+            output.append(String.format(Locale.US, "\n  %-16s x%-5d total %.1fms avg %.2fms",
+                    entry.getKey(), totals[0], totals[1] / 1e6, totals[1] / 1e6 / totals[0]));
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            output.append('\n').append(mStageTotals);
+        }
+        return output.toString();
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    private void startFrameMetrics() {
+        mMetricsThread = new HandlerThread("JankMonitorFrameMetrics");
+        mMetricsThread.start();
+        mMetricsListener = new Window.OnFrameMetricsAvailableListener() {
+            @Override
+            public void onFrameMetricsAvailable(Window window, FrameMetrics frameMetrics,
+                                                int dropCountSinceLastInvocation) {
+                mStageTotals.add(frameMetrics, mFrameIntervalNanos);
+            }
+        };
+        mActivity.getWindow().addOnFrameMetricsAvailableListener(mMetricsListener,
+                new Handler(mMetricsThread.getLooper()));
+    }
+
+    @TargetApi(Build.VERSION_CODES.N)
+    private void stopFrameMetrics() {
+        if (mMetricsListener != null) {
+            try {
+                mActivity.getWindow().removeOnFrameMetricsAvailableListener(mMetricsListener);
+            } catch (IllegalArgumentException e) {
+                Log.e(LOG_TAG, "Frame metrics listener was not registered", e);
+            }
+            mMetricsListener = null;
+        }
+        if (mMetricsThread != null) {
+            mMetricsThread.quitSafely();
+            mMetricsThread = null;
+        }
+    }
+
+    /**
+     * Per-stage time spent in janky frames, as reported by FrameMetrics on API 24+. Written on
+     * the metrics thread and read on the main thread.
+     */
+    private static class FrameStageTotals {
+        private int mFrames;
+        private int mJankyFrames;
+        private long mInputNanos;
+        private long mAnimationNanos;
+        private long mLayoutMeasureNanos;
+        private long mDrawNanos;
+        private long mSyncNanos;
+        private long mGpuNanos;
+
+        synchronized void reset() {
+            mFrames = 0;
+            mJankyFrames = 0;
+            mInputNanos = 0;
+            mAnimationNanos = 0;
+            mLayoutMeasureNanos = 0;
+            mDrawNanos = 0;
+            mSyncNanos = 0;
+            mGpuNanos = 0;
+        }
+
+        @TargetApi(Build.VERSION_CODES.N)
+        synchronized void add(FrameMetrics metrics, long frameIntervalNanos) {
+            mFrames++;
+            if (metrics.getMetric(FrameMetrics.TOTAL_DURATION) <= frameIntervalNanos) {
+                return;
+            }
+            mJankyFrames++;
+            mInputNanos += metrics.getMetric(FrameMetrics.INPUT_HANDLING_DURATION);
+            mAnimationNanos += metrics.getMetric(FrameMetrics.ANIMATION_DURATION);
+            mLayoutMeasureNanos += metrics.getMetric(FrameMetrics.LAYOUT_MEASURE_DURATION);
+            mDrawNanos += metrics.getMetric(FrameMetrics.DRAW_DURATION);
+            mSyncNanos += metrics.getMetric(FrameMetrics.SYNC_DURATION);
+            mGpuNanos += metrics.getMetric(FrameMetrics.COMMAND_ISSUE_DURATION)
+                    + metrics.getMetric(FrameMetrics.SWAP_BUFFERS_DURATION);
+        }
+
+        @Override
+        public synchronized String toString() {
+            return String.format(Locale.US,
+                    "  FrameMetrics: %d/%d janky; in janky frames input %.1fms, animation %.1fms,"
+                            + " layout/measure %.1fms, draw %.1fms, sync %.1fms, gpu %.1fms",
+                    mJankyFrames, mFrames, mInputNanos / 1e6, mAnimationNanos / 1e6,
+                    mLayoutMeasureNanos / 1e6, mDrawNanos / 1e6, mSyncNanos / 1e6,
+                    mGpuNanos / 1e6);
+        }
+    }
+}
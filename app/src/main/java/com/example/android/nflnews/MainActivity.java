@@ -8,8 +8,12 @@ import android.content.SharedPreferences;
 import android.net.ConnectivityManager;
 import android.net.NetworkInfo;
 import android.net.Uri;
+import android.os.Handler;
 import android.preference.PreferenceManager;
+import android.support.v4.text.PrecomputedTextCompat;
+import android.support.v4.widget.TextViewCompat;
 import android.support.v7.app.AppCompatActivity;
+import android.support.v7.widget.SearchView;
 import android.os.Bundle;
 import android.util.Log;
 import android.view.Menu;
@@ -28,11 +32,10 @@ public class MainActivity extends AppCompatActivity implements
     public static final String LOG_TAG = MainActivity.class.getName();
 
     /**
-     * URL for NewsItem data from the Guardian dataset
+     * URL for NewsItem data from the Guardian dataset. Defaults to the live API, but can be
+     * pointed at a local stand-in server at build time (see guardianBaseUrl in app/build.gradle).
      */
-    private static final String GUARDIAN_REQUEST_URL =
-            "https://content.guardianapis" +
-                    ".com/search?";
+    private static final String GUARDIAN_REQUEST_URL = BuildConfig.GUARDIAN_REQUEST_URL;
 
     /**
      * Constant value for the NewsItem loader ID. We can choose any integer.
@@ -40,6 +43,27 @@ public class MainActivity extends AppCompatActivity implements
      */
     private static final int NEWSITEM_LOADER_ID = 1;
 
+    /** Key of the search query in the loader's Bundle */
+    private static final String SEARCH_QUERY_KEY = "search_query";
+
+    /** Key of the production office in the loader's Bundle, set only to fetch one office */
+    private static final String PRODUCTION_OFFICE_KEY = "production_office";
+
+    /** Number of news items we want on screen for one country */
+    private static final int NEWS_PAGE_SIZE = 20;
+
+    /**
+     * Number of news items requested from all offices at once. Deep enough that each country's
+     * view can usually be filled from it without another request.
+     */
+    private static final int ALL_OFFICES_PAGE_SIZE = 50;
+
+    /** How long typing has to pause before a search goes out to the network */
+    private static final long SEARCH_DEBOUNCE_MILLIS = 300;
+
+    /** Number of earlier queries whose results are kept for instant local filtering */
+    private static final int SEARCH_CACHE_SIZE = 32;
+
     /**
      * Adapter for the list of NewsItems
      */
@@ -48,11 +72,51 @@ public class MainActivity extends AppCompatActivity implements
     /** TextView that is displayed when the list is empty */
     private TextView mEmptyStateTextView;
 
+    /** Text parameters of the list item title and byline, used to precompute their text */
+    private PrecomputedTextCompat.Params mTitleParams;
+    private PrecomputedTextCompat.Params mBylineParams;
+
+    /** Results of earlier searches, keyed by the current filter and query */
+    private final SearchResultCache mSearchCache = new SearchResultCache(SEARCH_CACHE_SIZE);
+
+    /** Sport filter of the last loader created, part of every cache key */
+    private String mFilterKey = "";
+
+    /** Current country of origin preference, applied locally to the all-offices feed */
+    private String mCountryFilter;
+
+    /** News items on screen from every office, indexed by office */
+    private NewsItemOfficeIndex mOfficeIndex;
+
+    /** Query of the last loader created */
+    private String mLoadingQuery = "";
+
+    /** Latest query typed into the search box, waiting for the debounce to fire */
+    private String mPendingQuery = "";
+
+    private final Handler mSearchHandler = new Handler();
+    private final Runnable mSearchRunnable = new Runnable() {
+        @Override
+        public void run() {
+            startSearch(mPendingQuery);
+        }
+    };
+
+    /** Frame timing monitor, only created in debug builds */
+    private JankMonitor mJankMonitor;
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         Log.i(LOG_TAG, "onCreate() triggered");
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
+        mCountryFilter = readCountryFilter();
+
+        if (BuildConfig.DEBUG) {
+            // Log slow frames with what ran during them, and warn about main thread I/O
+            mJankMonitor = new JankMonitor(this);
+            JankMonitor.enableMainThreadIoWarnings();
+        }
 
         // Find a reference to the {@link ListView} in the layout
         ListView newsItemListView = (ListView) findViewById(R.id.list);
@@ -64,6 +128,15 @@ public class MainActivity extends AppCompatActivity implements
         // so the list can be populated in the user interface
         newsItemListView.setAdapter(mAdapter);
 
+        // Inflate one list item up front to capture the exact text parameters of its title and
+        // byline, so the loader can lay out their text on its background thread.
+        View sampleListItem = getLayoutInflater().inflate(R.layout.list_item, newsItemListView,
+                false);
+        mTitleParams = TextViewCompat.getTextMetricsParams(
+                (TextView) sampleListItem.findViewById(R.id.article_title));
+        mBylineParams = TextViewCompat.getTextMetricsParams(
+                (TextView) sampleListItem.findViewById(R.id.article_byline));
+
         mEmptyStateTextView = (TextView) findViewById(R.id.empty_view);
         newsItemListView.setEmptyView(mEmptyStateTextView);
 
@@ -108,6 +181,16 @@ public class MainActivity extends AppCompatActivity implements
             // because this activity implements the LoaderCallbacks interface).
             Log.i(LOG_TAG, "calling initLoader() triggered");
             loaderManager.initLoader(NEWSITEM_LOADER_ID, null, this);
+
+            // A loader retained across a configuration change measured its text for the old
+            // font scale, locale or layout direction. Load again so the text is measured for
+            // the new ones; until then the adapter lays the old results out itself.
+            NewsItemLoader loader =
+                    (NewsItemLoader) loaderManager.<List<NewsItem>>getLoader(NEWSITEM_LOADER_ID);
+            if (!mTitleParams.equals(loader.getTitleParams())
+                    || !mBylineParams.equals(loader.getBylineParams())) {
+                restartNewsItemLoader(loader.getQuery(), loader.getProductionOffice());
+            }
         } else {
             // Otherwise, display error
             // First, hide loading indicator so error message will be visible
@@ -119,6 +202,61 @@ public class MainActivity extends AppCompatActivity implements
         }
     }
 
+    /**
+     * Called on every keystroke in the search box. Shows cached or locally filtered results
+     * straight away and schedules the remote search for when typing pauses.
+     */
+    private void onSearchQueryChanged(String newText) {
+        mPendingQuery = SearchResultCache.normalize(newText);
+        mSearchHandler.removeCallbacks(mSearchRunnable);
+
+        List<NewsItem> cachedResults = mSearchCache.get(mFilterKey, mPendingQuery);
+        if (cachedResults != null) {
+            // We already have the real answer, so there is nothing to ask the server.
+            if (!mPendingQuery.equals(mLoadingQuery)) {
+                // Cancel a search still in flight for the previous query and drop its loader.
+                // This resets the loader, which clears the list, so show the cached results
+                // afterwards.
+                mLoadingQuery = mPendingQuery;
+                cancelCurrentLoad();
+                getLoaderManager().destroyLoader(NEWSITEM_LOADER_ID);
+            }
+            showAllOffices(cachedResults, true);
+            return;
+        }
+
+        List<NewsItem> prefixMatches = mSearchCache.findPrefixMatches(mFilterKey, mPendingQuery);
+        if (prefixMatches != null) {
+            showAllOffices(prefixMatches, false);
+        }
+        mSearchHandler.postDelayed(mSearchRunnable, SEARCH_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * Restarts the loader for the given query, cancelling the load in flight for the previous
+     * query first so that its HTTP connection is dropped.
+     */
+    private void startSearch(String query) {
+        mSearchHandler.removeCallbacks(mSearchRunnable);
+        boolean hasLoader = getLoaderManager().getLoader(NEWSITEM_LOADER_ID) != null;
+        if (query.equals(mLoadingQuery) && hasLoader) {
+            return;
+        }
+        restartNewsItemLoader(query, null);
+    }
+
+    /**
+     * Cancels the current load, if one is running. The framework LoaderManager's
+     * restartLoader() and destroyLoader() only abandon a running load and let it finish, so
+     * without this a superseded search would still download its whole response.
+     */
+    private void cancelCurrentLoad() {
+        Loader<List<NewsItem>> loader = getLoaderManager().getLoader(NEWSITEM_LOADER_ID);
+        if (loader != null) {
+            loader.cancelLoad();
+        }
+    }
+
     @Override
     public Loader<List<NewsItem>> onCreateLoader(int i, Bundle bundle) {
         Log.i(LOG_TAG, "onCreateLoader() triggered");
@@ -130,11 +268,6 @@ public class MainActivity extends AppCompatActivity implements
                 getString(R.string.settings_sport_filter_key),
                 getString(R.string.settings_sport_filter_default));
 
-        String countryOriginFilter = sharedPrefs.getString(
-                getString(R.string.settings_country_origin_key),
-                getString(R.string.settings_country_origin_default)
-        );
-
         // parse breaks apart the URI string that's passed into its parameter
         Uri baseUri = Uri.parse(GUARDIAN_REQUEST_URL);
 
@@ -145,22 +278,88 @@ public class MainActivity extends AppCompatActivity implements
         uriBuilder.appendQueryParameter("section", "sport");
         uriBuilder.appendQueryParameter("tag", sportFilter);
 
-        //if countryOriginFilter == "all", we do not want to add this filter
-        if (!countryOriginFilter.equals(getString(R.string.settings_country_origin_all_value)
-        )) {
-            uriBuilder.appendQueryParameter("production-office", countryOriginFilter);
+        // We normally ask for every production office and filter by country locally, so
+        // changing the country preference doesn't need a new request. Only when that feed is
+        // too shallow for one country do we ask for that office on its own.
+        String productionOffice = bundle == null ? null
+                : bundle.getString(PRODUCTION_OFFICE_KEY);
+        if (productionOffice != null) {
+            uriBuilder.appendQueryParameter("production-office", productionOffice);
+        }
+
+        // Search within the current filter if the user has typed something
+        mFilterKey = sportFilter;
+        mLoadingQuery = bundle == null ? "" : bundle.getString(SEARCH_QUERY_KEY, "");
+        if (!mLoadingQuery.isEmpty()) {
+            uriBuilder.appendQueryParameter("q", mLoadingQuery);
         }
 
-        uriBuilder.appendQueryParameter("show-fields", "byline,thumbnail");
-        uriBuilder.appendQueryParameter("page-size", "20");
+        uriBuilder.appendQueryParameter("show-fields", "byline,thumbnail,productionOffice");
+        uriBuilder.appendQueryParameter("page-size", String.valueOf(productionOffice != null
+                ? NEWS_PAGE_SIZE : ALL_OFFICES_PAGE_SIZE));
         uriBuilder.appendQueryParameter("api-key", "e3b12aa9-122a-43a4-b4ed-7a512f85c89b");
 
         Log.i(LOG_TAG, "URL Search = " + uriBuilder.toString());
-        return new NewsItemLoader(MainActivity.this, uriBuilder.toString());
+        return new NewsItemLoader(MainActivity.this, uriBuilder.toString(), mFilterKey,
+                mLoadingQuery, productionOffice, mTitleParams, mBylineParams);
+    }
+
+    @Override
+    protected void onStart() {
+        // Read the country before super.onStart() starts the loader again, so the news items
+        // it hands back are filtered for the new country straight away.
+        String countryFilter = readCountryFilter();
+        boolean countryChanged = !countryFilter.equals(mCountryFilter);
+        mCountryFilter = countryFilter;
+        super.onStart();
+        // Coming back from the settings screen with a different country only needs the
+        // all-offices feed we already have to be filtered again.
+        if (countryChanged) {
+            if (mOfficeIndex != null) {
+                applyCountryFilter(true);
+            } else if (getLoaderManager().getLoader(NEWSITEM_LOADER_ID) != null) {
+                // All we have is one office's news items, retained across a configuration
+                // change, so ask for every office again.
+                restartNewsItemLoader(mLoadingQuery, null);
+            }
+        }
+    }
+
+    private String readCountryFilter() {
+        SharedPreferences sharedPrefs = PreferenceManager.getDefaultSharedPreferences(this);
+        return sharedPrefs.getString(
+                getString(R.string.settings_country_origin_key),
+                getString(R.string.settings_country_origin_default));
+    }
+
+    @Override
+    protected void onDestroy() {
+        // Drop a debounced search or deferred restart still waiting to run, so it can't touch
+        // the loaders of an activity that is gone.
+        mSearchHandler.removeCallbacksAndMessages(null);
+        super.onDestroy();
+    }
+
+    @Override
+    protected void onResume() {
+        super.onResume();
+        if (mJankMonitor != null) {
+            mJankMonitor.start();
+        }
+    }
+
+    @Override
+    protected void onPause() {
+        if (mJankMonitor != null) {
+            mJankMonitor.stop();
+        }
+        super.onPause();
     }
 
     @Override
     public void onLoadFinished(Loader<List<NewsItem>> loader, List<NewsItem> newsItems) {
+        long startNanos = System.nanoTime();
+
         // Set empty state text to display "No results found."
         mEmptyStateTextView.setText(R.string.no_results_found);
 
@@ -169,13 +368,93 @@ public class MainActivity extends AppCompatActivity implements
         loadingIndicator.setVisibility(View.GONE);
 
         Log.i(LOG_TAG, "onLoadFinished() triggered");
+        // Take the filter and query from the loader that delivered the data. After a
+        // configuration change a retained loader delivers before onCreateLoader() has run.
+        NewsItemLoader newsItemLoader = (NewsItemLoader) loader;
+        mFilterKey = newsItemLoader.getFilterKey();
+        mLoadingQuery = newsItemLoader.getQuery();
+        String productionOffice = newsItemLoader.getProductionOffice();
+
+        if (productionOffice != null) {
+            // A single office we had to ask for on its own. Fold it into the index; after a
+            // configuration change there is no index yet, so just show it.
+            if (mOfficeIndex != null) {
+                if (newsItems != null) {
+                    mOfficeIndex.putOffice(productionOffice, newsItems);
+                }
+                applyCountryFilter(false);
+            } else {
+                showNewsItems(newsItems);
+            }
+        } else {
+            // Remember the results for this query. Empty lists are not kept, since they are
+            // also what a failed request gives us.
+            if (newsItems != null && !newsItems.isEmpty()) {
+                mSearchCache.put(mFilterKey, mLoadingQuery, newsItems);
+            }
+            showAllOffices(newsItems, true);
+        }
+        JankMonitor.recordEvent("onLoadFinished", startNanos);
+    }
+
+    /**
+     * Indexes news items from every office and shows the ones for the current country.
+     *
+     * @param allowNetwork whether to request the country's office on its own if there are too
+     *                     few of its news items; false for results that are only a preview
+     */
+    private void showAllOffices(List<NewsItem> newsItems, boolean allowNetwork) {
+        if (newsItems == null) {
+            newsItems = new ArrayList<>();
+        }
+        // A loader hands its result back every time the activity starts. Keep the index built
+        // from that same list, so offices already fetched on their own are not asked for again.
+        if (mOfficeIndex == null || !mOfficeIndex.isIndexOf(newsItems)) {
+            mOfficeIndex = new NewsItemOfficeIndex(newsItems,
+                    getString(R.string.settings_country_origin_all_value));
+        }
+        applyCountryFilter(allowNetwork);
+    }
+
+    private void applyCountryFilter(boolean allowNetwork) {
+        if (allowNetwork && mOfficeIndex.isTooShallow(mCountryFilter, NEWS_PAGE_SIZE,
+                ALL_OFFICES_PAGE_SIZE)) {
+            final String query = mLoadingQuery;
+            final String office = mCountryFilter;
+            // Posted, since we may be inside onLoadFinished() of the loader being restarted
+            mSearchHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    restartNewsItemLoader(query, office);
+                }
+            });
+        }
+        // Show what we have for the country while a deeper request, if any, is running
+        showNewsItems(mOfficeIndex.get(mCountryFilter));
+    }
+
+    /**
+     * @param productionOffice office to ask for on its own, or null for every office
+     */
+    private void restartNewsItemLoader(String query, String productionOffice) {
+        Bundle args = new Bundle();
+        args.putString(SEARCH_QUERY_KEY, query);
+        if (productionOffice != null) {
+            args.putString(PRODUCTION_OFFICE_KEY, productionOffice);
+        }
+        cancelCurrentLoad();
+        getLoaderManager().restartLoader(NEWSITEM_LOADER_ID, args, this);
+    }
+
+    private void showNewsItems(List<NewsItem> newsItems) {
         // Clear the adapter of previous NewsItem data
         mAdapter.clear();
 
         // If there is a valid list of {@link NewsItem}s, then add them to the adapter's
-        // data set. This will trigger the ListView to update.
+        // data set. This will trigger the ListView to update. Every view shows one page, even
+        // the "all" view whose feed was asked for deeper.
         if (newsItems != null && !newsItems.isEmpty()) {
-            mAdapter.addAll(newsItems);
+            mAdapter.addAll(newsItems.subList(0, Math.min(newsItems.size(), NEWS_PAGE_SIZE)));
         }
     }
 
@@ -190,6 +469,26 @@ public class MainActivity extends AppCompatActivity implements
     @Override
     public boolean onCreateOptionsMenu(Menu menu) {
         getMenuInflater().inflate(R.menu.main, menu);
+
+        final SearchView searchView = (SearchView) menu.findItem(R.id.action_search)
+                .getActionView();
+        searchView.setQueryHint(getString(R.string.search_hint));
+        searchView.setOnQueryTextListener(new SearchView.OnQueryTextListener() {
+            @Override
+            public boolean onQueryTextSubmit(String query) {
+                // No need to wait out the debounce when the user presses search
+                mPendingQuery = SearchResultCache.normalize(query);
+                startSearch(mPendingQuery);
+                searchView.clearFocus();
+                return true;
+            }
+
+            @Override
+            public boolean onQueryTextChange(String newText) {
+                onSearchQueryChanged(newText);
+                return true;
+            }
+        });
         return true;
     }
 
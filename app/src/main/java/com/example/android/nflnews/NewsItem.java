@@ -1,5 +1,7 @@
 package com.example.android.nflnews;
 
+import android.support.v4.text.PrecomputedTextCompat;
+
 public class NewsItem {
     private String mTitle;
     private String mPublicationDate;
@@ -7,6 +9,14 @@ public class NewsItem {
     private String mUrl;
     private String mSectionName;
     private String mImageUrl;
+    private String mProductionOffice;
+
+    /** Title and byline measured on a background thread, or null if not precomputed */
+    private PrecomputedTextCompat mPrecomputedTitle;
+    private PrecomputedTextCompat mPrecomputedByline;
+
+    /** Average colour of the thumbnail, or {@link ThumbnailPreviewStore#NO_PREVIEW} */
+    private int mPreviewColor = ThumbnailPreviewStore.NO_PREVIEW;
 
     /**
      * Constructs a new {@link NewsItem} object.
@@ -20,12 +30,23 @@ public class NewsItem {
      */
     public NewsItem(String title, String publicationDate, String byline, String url, String
             sectionName, String imageUrl) {
+        this(title, publicationDate, byline, url, sectionName, imageUrl, "");
+    }
+
+    /**
+     * Constructs a new {@link NewsItem} object that knows which Guardian office produced it.
+     *
+     * @param productionOffice is the Guardian production office, e.g. "US", "UK" or "AUS"
+     */
+    public NewsItem(String title, String publicationDate, String byline, String url, String
+            sectionName, String imageUrl, String productionOffice) {
         mTitle = title;
         mPublicationDate = publicationDate;
         mByline = byline;
         mUrl = url;
         mSectionName = sectionName;
         mImageUrl = imageUrl;
+        mProductionOffice = productionOffice;
     }
 
     public String getTitle(){
@@ -51,4 +72,32 @@ public class NewsItem {
     public String getImageUrl(){
         return mImageUrl;
     }
-}
+
+    public String getProductionOffice() {
+        return mProductionOffice;
+    }
+
+    public PrecomputedTextCompat getPrecomputedTitle() {
+        return mPrecomputedTitle;
+    }
+
+    public void setPrecomputedTitle(PrecomputedTextCompat precomputedTitle) {
+        mPrecomputedTitle = precomputedTitle;
+    }
+
+    public PrecomputedTextCompat getPrecomputedByline() {
+        return mPrecomputedByline;
+    }
+
+    public void setPrecomputedByline(PrecomputedTextCompat precomputedByline) {
+        mPrecomputedByline = precomputedByline;
+    }
+
+    public int getPreviewColor() {
+        return mPreviewColor;
+    }
+
+    public void setPreviewColor(int previewColor) {
+        mPreviewColor = previewColor;
+    }
+}
\ No newline at end of file
@@ -1,6 +1,10 @@
 package com.example.android.nflnews;
 
 import android.app.Activity;
+import android.graphics.drawable.ColorDrawable;
+import android.support.annotation.VisibleForTesting;
+import android.support.v4.text.PrecomputedTextCompat;
+import android.support.v4.widget.TextViewCompat;
 import android.view.LayoutInflater;
 import android.view.View;
 import android.view.ViewGroup;
@@ -40,29 +44,40 @@ public class NewsItemAdapter extends ArrayAdapter<NewsItem> {
      */
     @Override
     public View getView(int position, View convertView, ViewGroup parent) {
+        long startNanos = System.nanoTime();
+
         // Check if there is an existing list item view (called convertView) that we can reuse,
         // otherwise, if convertView is null, then inflate a new list item layout.
         View listItemView = convertView;
         if (listItemView == null) {
             listItemView = LayoutInflater.from(getContext()).inflate(
                     R.layout.list_item, parent, false);
+            // Work out the text parameters of the new row once, not on every bind
+            listItemView.setTag(new RowTextParams(listItemView));
         }
+        RowTextParams rowTextParams = (RowTextParams) listItemView.getTag();
 
         // Find the NewsItem at the given position in the list of NewsItems
         NewsItem currentNewsItem = getItem(position);
 
         // Find the TextView with view ID article_title
         TextView titleView = (TextView) listItemView.findViewById(R.id.article_title);
-        // Get magnitude and format the number
-        String articleTitle = currentNewsItem.getTitle();
-        // Display the magnitude of the current earthquake in that TextView
-        titleView.setText(articleTitle);
+        // Use the title measured by the loader if there is one, so binding does no text layout
+        PrecomputedTextCompat precomputedTitle = currentNewsItem.getPrecomputedTitle();
+        if (isMeasuredFor(precomputedTitle, rowTextParams.mTitleParams)) {
+            TextViewCompat.setPrecomputedText(titleView, precomputedTitle);
+        } else {
+            titleView.setText(NewsItemTextPrecomputer.formatTitle(currentNewsItem.getTitle()));
+        }
 
         // Find the TextView with view ID article_byline
         TextView bylineView = (TextView) listItemView.findViewById(R.id.article_byline);
-        String articleByline = currentNewsItem.getByline();
-        // Display the location of the current earthquake in that TextView
-        bylineView.setText(articleByline);
+        PrecomputedTextCompat precomputedByline = currentNewsItem.getPrecomputedByline();
+        if (isMeasuredFor(precomputedByline, rowTextParams.mBylineParams)) {
+            TextViewCompat.setPrecomputedText(bylineView, precomputedByline);
+        } else {
+            bylineView.setText(currentNewsItem.getByline());
+        }
 
         // Find the TextView with view ID date
         TextView dateView = (TextView) listItemView.findViewById(R.id.date);
@@ -82,18 +97,60 @@ public class NewsItemAdapter extends ArrayAdapter<NewsItem> {
         ImageView image = listItemView.findViewById(R.id.article_image);
 
         if (currentNewsItem != null) {
-            new ImageLoaderTask(image).execute(currentNewsItem.getImageUrl());
+            // Show the thumbnail's preview colour (or nothing) right away, so a recycled row
+            // never shows the previous article's image while the real one downloads.
+            int previewColor = currentNewsItem.getPreviewColor();
+            if (previewColor != ThumbnailPreviewStore.NO_PREVIEW) {
+                image.setImageDrawable(new ColorDrawable(previewColor));
+            } else {
+                image.setImageDrawable(null);
+            }
+            image.setTag(currentNewsItem.getImageUrl());
+            new ImageLoaderTask(image, currentNewsItem).execute(currentNewsItem.getImageUrl());
         }
 
+        JankMonitor.recordEvent("getView", startNanos);
+
         // Return the list item view that is now showing the appropriate data
         return listItemView;
     }
 
+    /**
+     * setPrecomputedText() throws if the text was measured with other text parameters than the
+     * view has, which happens when the font scale, locale or layout direction changed after
+     * the loader captured them.
+     *
+     * @param precomputed text measured by the loader, or null if it measured none
+     * @param viewParams text parameters of the TextView it would go into
+     * @return true if the precomputed text can be set on that TextView
+     */
+    private static boolean isMeasuredFor(PrecomputedTextCompat precomputed,
+                                         PrecomputedTextCompat.Params viewParams) {
+        return precomputed != null && viewParams.equals(precomputed.getParams());
+    }
+
+    /**
+     * Text parameters of a list item's title and byline, kept in the row's tag. They only
+     * change with the configuration, which recreates the rows.
+     */
+    private static class RowTextParams {
+        final PrecomputedTextCompat.Params mTitleParams;
+        final PrecomputedTextCompat.Params mBylineParams;
+
+        RowTextParams(View listItemView) {
+            mTitleParams = TextViewCompat.getTextMetricsParams(
+                    (TextView) listItemView.findViewById(R.id.article_title));
+            mBylineParams = TextViewCompat.getTextMetricsParams(
+                    (TextView) listItemView.findViewById(R.id.article_byline));
+        }
+    }
+
     /**
      * @param dateTime is the DateTime format from the JSON results
      * @return the parsed and formatted date string
      */
-    private String parseAndFormatDate(String dateTime){
+    @VisibleForTesting
+    static String parseAndFormatDate(String dateTime){
         String date = "";
         String monthAsNumber = dateTime.substring(5,7);
         String month = "";
@@ -2,6 +2,9 @@ package com.example.android.nflnews;
 
 import android.content.AsyncTaskLoader;
 import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.support.v4.text.PrecomputedTextCompat;
 import android.util.Log;
 
 import java.util.List;
@@ -18,6 +21,23 @@ public class NewsItemLoader extends AsyncTaskLoader<List<NewsItem>> {
     /** Query URL */
     private String mUrl;
 
+    /** Sport filter and search query the URL was built from, to key cached results */
+    private String mFilterKey;
+    private String mQuery;
+
+    /** Production office the URL asks for, or null if it asks for every office */
+    private String mProductionOffice;
+
+    /** Result of the last load, delivered again when the activity starts */
+    private List<NewsItem> mNewsItems;
+
+    /** Text parameters of the list item title and byline, or null to skip precomputing */
+    private PrecomputedTextCompat.Params mTitleParams;
+    private PrecomputedTextCompat.Params mBylineParams;
+
+    /** Signal for the request in flight, so a superseded load can drop its connection */
+    private CancellationSignal mCancellationSignal;
+
     /**
      * Constructs a new {@link NewsItemLoader}.
      *
@@ -25,14 +45,89 @@ public class NewsItemLoader extends AsyncTaskLoader<List<NewsItem>> {
      * @param url to load data from
      */
     public NewsItemLoader(Context context, String url) {
+        this(context, url, "", "", null, null, null);
+    }
+
+    /**
+     * Constructs a new {@link NewsItemLoader} that also precomputes the title and byline text
+     * of every loaded {@link NewsItem}.
+     *
+     * @param context of the activity
+     * @param url to load data from
+     * @param filterKey sport filter the URL was built with
+     * @param query search query the URL was built with, or "" for none
+     * @param productionOffice office the URL asks for, or null for every office
+     * @param titleParams text parameters of the list item title
+     * @param bylineParams text parameters of the list item byline
+     */
+    public NewsItemLoader(Context context, String url, String filterKey, String query,
+                          String productionOffice, PrecomputedTextCompat.Params titleParams,
+                          PrecomputedTextCompat.Params bylineParams) {
         super(context);
         mUrl = url;
+        mFilterKey = filterKey;
+        mQuery = query;
+        mProductionOffice = productionOffice;
+        mTitleParams = titleParams;
+        mBylineParams = bylineParams;
     }
 
+    public String getFilterKey() {
+        return mFilterKey;
+    }
+
+    public String getQuery() {
+        return mQuery;
+    }
+
+    public String getProductionOffice() {
+        return mProductionOffice;
+    }
+
+    public PrecomputedTextCompat.Params getTitleParams() {
+        return mTitleParams;
+    }
+
+    public PrecomputedTextCompat.Params getBylineParams() {
+        return mBylineParams;
+    }
+
+    /**
+     * The LoaderManager stops loaders in onStop() and starts them again in onStart(), for
+     * example when coming back from the settings screen. Hand back the news items we already
+     * have instead of making the request again.
+     */
     @Override
     protected void onStartLoading() {
         Log.i(LOG_TAG, "startLoading() triggered");
-        forceLoad();
+        if (mNewsItems != null) {
+            deliverResult(mNewsItems);
+        } else {
+            forceLoad();
+        }
+    }
+
+    @Override
+    public void deliverResult(List<NewsItem> newsItems) {
+        if (isReset()) {
+            return;
+        }
+        mNewsItems = newsItems;
+        if (isStarted()) {
+            super.deliverResult(newsItems);
+        }
+    }
+
+    @Override
+    protected void onStopLoading() {
+        cancelLoad();
+    }
+
+    @Override
+    protected void onReset() {
+        super.onReset();
+        onStopLoading();
+        mNewsItems = null;
     }
 
     /**
@@ -45,8 +140,60 @@ public class NewsItemLoader extends AsyncTaskLoader<List<NewsItem>> {
             return null;
         }
 
+        final CancellationSignal cancellationSignal = new CancellationSignal();
+        synchronized (this) {
+            if (isLoadInBackgroundCanceled()) {
+                throw new OperationCanceledException();
+            }
+            mCancellationSignal = cancellationSignal;
+        }
+
         // Perform the network request, parse the response, and extract a list of earthquakes.
-        List<NewsItem> newsItems = QueryUtils.fetchNewsItemData(mUrl);
+        List<NewsItem> newsItems;
+        try {
+            newsItems = QueryUtils.fetchNewsItemData(mUrl, new RequestCancellation() {
+                @Override
+                public boolean isCanceled() {
+                    return cancellationSignal.isCanceled();
+                }
+
+                @Override
+                public void setOnCancelListener(final OnCancelListener listener) {
+                    cancellationSignal.setOnCancelListener(listener == null ? null
+                            : new CancellationSignal.OnCancelListener() {
+                                @Override
+                                public void onCancel() {
+                                    listener.onCancel();
+                                }
+                            });
+                }
+            });
+        } finally {
+            synchronized (this) {
+                mCancellationSignal = null;
+            }
+        }
+
+        // Measure the headlines here so the adapter doesn't have to on the main thread.
+        NewsItemTextPrecomputer.precompute(newsItems, mTitleParams, mBylineParams);
+
+        // Attach the thumbnail preview colours saved from earlier downloads.
+        ThumbnailPreviewStore.attachPreviews(getContext(), newsItems);
         return newsItems;
     }
+
+    /**
+     * Called on the main thread when the load is cancelled with cancelLoad(). The framework
+     * LoaderManager's restartLoader() and destroyLoader() usually only abandon a running load,
+     * so MainActivity calls cancelLoad() itself before replacing a search.
+     */
+    @Override
+    public void cancelLoadInBackground() {
+        super.cancelLoadInBackground();
+        synchronized (this) {
+            if (mCancellationSignal != null) {
+                mCancellationSignal.cancel();
+            }
+        }
+    }
 }
\ No newline at end of file
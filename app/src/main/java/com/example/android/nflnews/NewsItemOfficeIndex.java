@@ -0,0 +1,91 @@
+package com.example.android.nflnews;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Secondary index of a feed of {@link NewsItem}s from every Guardian production office, by
+ * office. Lets the US/UK/AUS views be answered from the one "all offices" feed instead of
+ * making a new API call each time the country preference changes.
+ */
+public class NewsItemOfficeIndex {
+
+    /** Country preference value that means "don't filter by office" */
+    private final String mAllOfficesValue;
+
+    private final List<NewsItem> mAllNewsItems;
+    private final Map<String, List<NewsItem>> mByOffice = new HashMap<>();
+
+    /** Offices whose results came from their own API call, so are as deep as they get */
+    private final Set<String> mFetchedOffices = new HashSet<>();
+
+    /**
+     * @param allNewsItems news items from every production office, newest first
+     * @param allOfficesValue country preference value that means "don't filter by office",
+     *                        i.e. settings_country_origin_all_value
+     */
+    public NewsItemOfficeIndex(List<NewsItem> allNewsItems, String allOfficesValue) {
+        mAllNewsItems = allNewsItems;
+        mAllOfficesValue = allOfficesValue;
+        for (NewsItem newsItem : allNewsItems) {
+            String office = normalize(newsItem.getProductionOffice());
+            List<NewsItem> officeNewsItems = mByOffice.get(office);
+            if (officeNewsItems == null) {
+                officeNewsItems = new ArrayList<>();
+                mByOffice.put(office, officeNewsItems);
+            }
+            officeNewsItems.add(newsItem);
+        }
+    }
+
+    /**
+     * @return true if this index was built from exactly this list, e.g. when a loader delivers
+     * the same result again
+     */
+    public boolean isIndexOf(List<NewsItem> allNewsItems) {
+        return mAllNewsItems == allNewsItems;
+    }
+
+    /**
+     * @param office a country preference value, e.g. "us", or the "all offices" value
+     * @return the news items from that office, in feed order
+     */
+    public List<NewsItem> get(String office) {
+        if (mAllOfficesValue.equals(office)) {
+            return mAllNewsItems;
+        }
+        List<NewsItem> officeNewsItems = mByOffice.get(normalize(office));
+        return officeNewsItems == null ? new ArrayList<NewsItem>() : officeNewsItems;
+    }
+
+    /**
+     * Replaces an office's news items with the results of a request for that office alone.
+     */
+    public void putOffice(String office, List<NewsItem> officeNewsItems) {
+        mByOffice.put(normalize(office), officeNewsItems);
+        mFetchedOffices.add(normalize(office));
+    }
+
+    /**
+     * @param pageSize number of news items we want to show
+     * @param fullFeedSize number of news items the "all offices" request asked for; if the feed
+     *                     holds fewer, it is everything there is and filtering it is exact
+     * @return true if the feed doesn't hold a page of this office's news items but the API
+     * might, so the office has to be requested on its own
+     */
+    public boolean isTooShallow(String office, int pageSize, int fullFeedSize) {
+        return !mAllOfficesValue.equals(office)
+                && !mFetchedOffices.contains(normalize(office))
+                && mAllNewsItems.size() >= fullFeedSize
+                && get(office).size() < pageSize;
+    }
+
+    private static String normalize(String office) {
+        return office == null ? "" : office.toLowerCase(Locale.US);
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.android.nflnews;
+
+import android.support.v4.text.PrecomputedTextCompat;
+import android.text.TextUtils;
+
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Measures the headline and byline of each {@link NewsItem} ahead of time, so that
+ * {@link NewsItemAdapter#getView} can hand the finished text to its TextViews without any
+ * text measurement on the main thread.
+ */
+public final class NewsItemTextPrecomputer {
+
+    /**
+     * Create a private constructor because no one should ever create a
+     * {@link NewsItemTextPrecomputer} object. This class only holds static methods.
+     */
+    private NewsItemTextPrecomputer() {
+    }
+
+    /**
+     * Headlines are shown in capitals. This is done here instead of with android:textAllCaps,
+     * because a transformation method on the TextView would throw the precomputed text away.
+     */
+    public static String formatTitle(String title) {
+        return title.toUpperCase(Locale.getDefault());
+    }
+
+    /**
+     * Precomputes the title and byline of every news item for the given text parameters. This
+     * is slow, so it must run on a background thread.
+     *
+     * @param titleParams text parameters of the article_title TextView in list_item.xml
+     * @param bylineParams text parameters of the article_byline TextView in list_item.xml
+     */
+    public static void precompute(List<NewsItem> newsItems,
+                                  PrecomputedTextCompat.Params titleParams,
+                                  PrecomputedTextCompat.Params bylineParams) {
+        if (newsItems == null || titleParams == null || bylineParams == null) {
+            return;
+        }
+        for (NewsItem newsItem : newsItems) {
+            newsItem.setPrecomputedTitle(PrecomputedTextCompat.create(
+                    formatTitle(newsItem.getTitle()), titleParams));
+            if (!TextUtils.isEmpty(newsItem.getByline())) {
+                newsItem.setPrecomputedByline(PrecomputedTextCompat.create(
+                        newsItem.getByline(), bylineParams));
+            }
+        }
+    }
+}
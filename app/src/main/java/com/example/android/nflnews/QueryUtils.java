@@ -1,5 +1,7 @@
 package com.example.android.nflnews;
 
+import android.os.OperationCanceledException;
+import android.support.annotation.VisibleForTesting;
 import android.text.TextUtils;
 import android.util.Log;
 
@@ -96,10 +98,14 @@ public final class QueryUtils {
                 // associated with the key called "thumbnail".
                 String thumbnailUrl = fields.getString("thumbnail");
 
+                // Get the Guardian office that produced the news item (e.g. "US"), which is
+                // associated with the key called "productionOffice". Not every item has one.
+                String productionOffice = fields.optString("productionOffice", "");
+
                 // Create a new {@link NewsItem} object with the title, publication date, byline,
                 // and url from the JSON response.
                 NewsItem newsItem = new NewsItem(title, publicationDate, byline, url,
-                        newsSectionName, thumbnailUrl);
+                        newsSectionName, thumbnailUrl, productionOffice);
 
                 // Add the new {@link NewsItem} to the list of newsItems.
                 newsItems.add(newsItem);
@@ -130,9 +136,11 @@ public final class QueryUtils {
     }
 
     /**
-     * Make an HTTP request to the given URL and return a String as the response.
+     * Make an HTTP request to the given URL and return a String as the response. If the
+     * request is cancelled, the connection is dropped and the request ends early.
      */
-    private static String makeHttpRequest(URL url) throws IOException {
+    private static String makeHttpRequest(URL url, RequestCancellation cancellation)
+            throws IOException {
         String jsonResponse = "";
         // If the URL is null, then return early.
         if (url == null) {
@@ -142,6 +150,16 @@ public final class QueryUtils {
         InputStream inputStream = null;
         try {
             urlConnection = (HttpURLConnection) url.openConnection();
+            if (cancellation != null) {
+                // Disconnecting from the cancelling thread aborts a blocked connect or read.
+                final HttpURLConnection connection = urlConnection;
+                cancellation.setOnCancelListener(new RequestCancellation.OnCancelListener() {
+                    @Override
+                    public void onCancel() {
+                        connection.disconnect();
+                    }
+                });
+            }
             urlConnection.setReadTimeout(10000 /* milliseconds */);
             urlConnection.setConnectTimeout(15000 /* milliseconds */);
             urlConnection.setRequestMethod("GET");
@@ -155,8 +173,15 @@ public final class QueryUtils {
                 Log.e(LOG_TAG, "Error response code: " + urlConnection.getResponseCode());
             }
         } catch (IOException e) {
-            Log.e(LOG_TAG, "Problem retrieving the news item JSON results.", e);
+            if (cancellation != null && cancellation.isCanceled()) {
+                Log.i(LOG_TAG, "News item request cancelled.");
+            } else {
+                Log.e(LOG_TAG, "Problem retrieving the news item JSON results.", e);
+            }
         } finally {
+            if (cancellation != null) {
+                cancellation.setOnCancelListener(null);
+            }
             if (urlConnection != null) {
                 urlConnection.disconnect();
             }
@@ -174,7 +199,8 @@ public final class QueryUtils {
      * Convert the {@link InputStream} into a String which contains the
      * whole JSON response from the server.
      */
-    private static String readFromStream(InputStream inputStream) throws IOException {
+    @VisibleForTesting
+    static String readFromStream(InputStream inputStream) throws IOException {
         StringBuilder output = new StringBuilder();
         if (inputStream != null) {
             InputStreamReader inputStreamReader = new InputStreamReader(inputStream, Charset.forName("UTF-8"));
@@ -192,6 +218,15 @@ public final class QueryUtils {
      * Query the Guardian dataset and return a list of {@link NewsItem} objects.
      */
     public static List<NewsItem> fetchNewsItemData(String requestUrl) {
+        return fetchNewsItemData(requestUrl, null);
+    }
+
+    /**
+     * Query the Guardian dataset and return a list of {@link NewsItem} objects. Throws
+     * {@link android.os.OperationCanceledException} if the request is cancelled.
+     */
+    public static List<NewsItem> fetchNewsItemData(String requestUrl,
+                                                   RequestCancellation cancellation) {
 
         Log.i(LOG_TAG, "fetchNewsItemData triggered");
         // Create URL object
@@ -200,11 +235,16 @@ public final class QueryUtils {
         // Perform HTTP request to the URL and receive a JSON response back
         String jsonResponse = null;
         try {
-            jsonResponse = makeHttpRequest(url);
+            jsonResponse = makeHttpRequest(url, cancellation);
         } catch (IOException e) {
             Log.e(LOG_TAG, "Problem making the HTTP request.", e);
         }
 
+        // Don't bother parsing a response nobody is waiting for any more
+        if (cancellation != null && cancellation.isCanceled()) {
+            throw new OperationCanceledException();
+        }
+
         // Extract relevant fields from the JSON response and create a list of {@link NewsItem}s
         List<NewsItem> newsItems = extractResultsFromJson(jsonResponse);
 
@@ -0,0 +1,22 @@
+package com.example.android.nflnews;
+
+/**
+ * Lets a request made by {@link QueryUtils} be cancelled from another thread. The loader
+ * adapts its framework CancellationSignal to this, so QueryUtils itself doesn't depend on a
+ * framework class the local unit tests can't run.
+ */
+public interface RequestCancellation {
+
+    interface OnCancelListener {
+        /** Called on the thread that cancels the request */
+        void onCancel();
+    }
+
+    boolean isCanceled();
+
+    /**
+     * Sets the listener to run on cancellation, running it straight away if the request has
+     * already been cancelled. Pass null to remove it.
+     */
+    void setOnCancelListener(OnCancelListener listener);
+}
@@ -0,0 +1,97 @@
+package com.example.android.nflnews;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Bounded, least recently used cache of search results, keyed by the sport filter and the
+ * search query. Results hold every production office; the country is applied afterwards. While a remote search is in flight, the results of the longest cached
+ * prefix of the query can be filtered locally to give the user something to look at.
+ */
+public class SearchResultCache {
+
+    private final Map<String, List<NewsItem>> mResults;
+
+    /**
+     * @param maxEntries the most queries to keep; the least recently used one is dropped first
+     */
+    public SearchResultCache(final int maxEntries) {
+        mResults = new LinkedHashMap<String, List<NewsItem>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, List<NewsItem>> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the query trimmed and lower-cased, so "Brady " and "brady" share a cache entry
+     */
+    public static String normalize(String query) {
+        return query == null ? "" : query.trim().toLowerCase(Locale.getDefault());
+    }
+
+    /**
+     * @return the results of exactly this query, or null if they are not cached
+     */
+    public List<NewsItem> get(String filterKey, String query) {
+        return mResults.get(key(filterKey, query));
+    }
+
+    public void put(String filterKey, String query, List<NewsItem> newsItems) {
+        mResults.put(key(filterKey, query), newsItems);
+    }
+
+    /**
+     * Finds the longest cached prefix of the query (down to the unfiltered feed, cached under
+     * the empty query) and keeps only its results whose title contains every word of the query.
+     *
+     * @return the locally filtered results, or null if no prefix of the query is cached
+     */
+    public List<NewsItem> findPrefixMatches(String filterKey, String query) {
+        for (int length = query.length() - 1; length >= 0; length--) {
+            List<NewsItem> prefixResults = mResults.get(key(filterKey, query.substring(0, length)));
+            if (prefixResults != null) {
+                return filterByTitle(prefixResults, query);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the news items whose title contains every word of the query, ignoring case
+     */
+    public static List<NewsItem> filterByTitle(List<NewsItem> newsItems, String query) {
+        String[] words = query.trim().split("\\s+");
+        List<NewsItem> matches = new ArrayList<>();
+        for (NewsItem newsItem : newsItems) {
+            boolean matchesAll = true;
+            for (String word : words) {
+                if (!containsIgnoreCase(newsItem.getTitle(), word)) {
+                    matchesAll = false;
+                    break;
+                }
+            }
+            if (matchesAll) {
+                matches.add(newsItem);
+            }
+        }
+        return matches;
+    }
+
+    private static boolean containsIgnoreCase(String text, String word) {
+        for (int i = 0; i + word.length() <= text.length(); i++) {
+            if (text.regionMatches(true, i, word, 0, word.length())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String key(String filterKey, String query) {
+        return filterKey + '\n' + query;
+    }
+}
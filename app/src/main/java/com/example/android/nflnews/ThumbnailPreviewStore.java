@@ -0,0 +1,112 @@
+package com.example.android.nflnews;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.graphics.Bitmap;
+
+import java.util.List;
+
+/**
+ * Keeps a tiny preview of every article thumbnail we have downloaded: a single colour that is
+ * the average of the image. It is worked out once, saved next to the article (keyed by its
+ * thumbnail URL) and drawn straight away on bind while the full image downloads.
+ */
+public final class ThumbnailPreviewStore {
+
+    /** Value of a preview colour that hasn't been worked out yet (fully transparent) */
+    public static final int NO_PREVIEW = 0;
+
+    private static final String PREFS_NAME = "thumbnail_previews";
+
+    /** Upper bound on stored previews; past this the oldest one is dropped for each new one */
+    private static final int MAX_ENTRIES = 500;
+
+    /**
+     * The store is a ring of MAX_ENTRIES slots. Slot n holds the thumbnail URL stored in it
+     * under SLOT_KEY_PREFIX + n, and NEXT_SLOT_KEY holds the slot to reuse next. Neither key
+     * can collide with a thumbnail URL.
+     */
+    private static final String SLOT_KEY_PREFIX = "slot:";
+    private static final String NEXT_SLOT_KEY = "next_slot";
+
+    /** Pixels sampled along each side of a thumbnail when averaging its colour */
+    private static final int SAMPLE_GRID_SIZE = 16;
+
+    /**
+     * Create a private constructor because no one should ever create a
+     * {@link ThumbnailPreviewStore} object. This class only holds static methods.
+     */
+    private ThumbnailPreviewStore() {
+    }
+
+    /**
+     * @return the average colour of the bitmap, always fully opaque so that it can never be
+     * mistaken for {@link #NO_PREVIEW}
+     */
+    public static int computePreviewColor(Bitmap bitmap) {
+        // Average an evenly spaced grid of pixels over the whole image. Scaling down to one
+        // pixel doesn't do this: bilinear filtering only looks at a few pixels in the middle.
+        int width = bitmap.getWidth();
+        int height = bitmap.getHeight();
+        int columns = Math.min(width, SAMPLE_GRID_SIZE);
+        int rows = Math.min(height, SAMPLE_GRID_SIZE);
+        int[] row = new int[width];
+        long red = 0;
+        long green = 0;
+        long blue = 0;
+        for (int i = 0; i < rows; i++) {
+            int y = (2 * i + 1) * height / (2 * rows);
+            bitmap.getPixels(row, 0, width, 0, y, width, 1);
+            for (int j = 0; j < columns; j++) {
+                int pixel = row[(2 * j + 1) * width / (2 * columns)];
+                red += (pixel >> 16) & 0xFF;
+                green += (pixel >> 8) & 0xFF;
+                blue += pixel & 0xFF;
+            }
+        }
+        int samples = Math.max(1, rows * columns);
+        return 0xFF000000 | (int) (red / samples) << 16 | (int) (green / samples) << 8
+                | (int) (blue / samples);
+    }
+
+    /**
+     * Sets the stored preview colour on every news item that has one. Reads from disk, so
+     * call it on a background thread.
+     */
+    public static void attachPreviews(Context context, List<NewsItem> newsItems) {
+        if (context == null || newsItems == null) {
+            return;
+        }
+        SharedPreferences previews = getPreferences(context);
+        for (NewsItem newsItem : newsItems) {
+            newsItem.setPreviewColor(previews.getInt(newsItem.getImageUrl(), NO_PREVIEW));
+        }
+    }
+
+    /**
+     * Saves the preview colour for a thumbnail URL, dropping the oldest preview once the store
+     * is full. The write to disk happens asynchronously.
+     */
+    public static synchronized void putPreviewColor(Context context, String imageUrl,
+                                                    int previewColor) {
+        SharedPreferences previews = getPreferences(context);
+        SharedPreferences.Editor editor = previews.edit();
+        if (!previews.contains(imageUrl)) {
+            // Take the next slot, evicting whichever thumbnail was stored in it last time round
+            int nextSlot = previews.getInt(NEXT_SLOT_KEY, 0);
+            String slotKey = SLOT_KEY_PREFIX + nextSlot;
+            String evictedUrl = previews.getString(slotKey, null);
+            if (evictedUrl != null) {
+                editor.remove(evictedUrl);
+            }
+            editor.putString(slotKey, imageUrl);
+            editor.putInt(NEXT_SLOT_KEY, (nextSlot + 1) % MAX_ENTRIES);
+        }
+        editor.putInt(imageUrl, previewColor).apply();
+    }
+
+    private static SharedPreferences getPreferences(Context context) {
+        return context.getApplicationContext().getSharedPreferences(PREFS_NAME,
+                Context.MODE_PRIVATE);
+    }
+}
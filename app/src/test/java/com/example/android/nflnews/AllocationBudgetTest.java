@@ -0,0 +1,182 @@
+package com.example.android.nflnews;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.Charset;
+import java.util.List;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Fails the build when a hot path starts allocating noticeably more than it used to. Each test
+ * runs a path over the recorded Guardian response until the JIT has settled, then reads the
+ * current thread's allocated byte counter around a batch of runs.
+ *
+ * The budgets are bytes per parsed article or per formatted row on a desktop JVM with
+ * org.json:json, with some headroom. They are not the numbers ART would report on a device;
+ * what matters is that they move when the code does. If a change legitimately needs more,
+ * raise the budget in the same commit and say why.
+ *
+ * They were measured on JDK 8, which the Gradle 4.6 / Android plugin 3.2.1 build runs on, and
+ * on JDK 17 with compact strings off. Strings take two bytes per char on JDK 8, but only one
+ * for Latin-1 text on JDK 9+ by default, so app/build.gradle turns compact strings off for
+ * unit tests. Each budget is the higher of the two measurements plus some headroom.
+ *
+ * Every result is stored in {@link #mSink} and counted in {@link #mChecksum}, so the JIT can't
+ * prove the allocations unused and optimise them away.
+ */
+public class AllocationBudgetTest {
+
+    private static final int WARM_UP_RUNS = 2000;
+    private static final int MEASURED_RUNS = 500;
+
+    /** Bytes allocated per article by QueryUtils.extractResultsFromJson (about 7,400) */
+    private static final long PARSE_BUDGET_PER_ARTICLE = 8 * 1024 + 512;
+
+    /**
+     * Bytes allocated per article's worth of response by QueryUtils.readFromStream (about
+     * 10,600)
+     */
+    private static final long READ_BUDGET_PER_ARTICLE = 12 * 1024;
+
+    /**
+     * Bytes allocated per row by getView's text formatting when the loader precomputed it
+     * (about 280)
+     */
+    private static final long PRECOMPUTED_ROW_BUDGET_PER_ROW = 320;
+
+    /**
+     * Bytes allocated per row by getView's text formatting when it falls back to setText
+     * (about 530)
+     */
+    private static final long FALLBACK_ROW_BUDGET_PER_ROW = 600;
+
+    private String mRecordedJson;
+    private byte[] mRecordedBytes;
+    private int mArticleCount;
+
+    private Object mSink;
+    private long mChecksum;
+
+    @Before
+    public void setUp() throws Exception {
+        mRecordedBytes = FakeGuardianServer.readResource("guardian/search_response.json");
+        mRecordedJson = new String(mRecordedBytes, Charset.forName("UTF-8"));
+        mArticleCount = QueryUtils.extractResultsFromJson(mRecordedJson).size();
+        assertEquals(10, mArticleCount);
+    }
+
+    @Test
+    public void extractResultsFromJson_staysWithinBudget() {
+        long perArticle = measure(new Runnable() {
+            @Override
+            public void run() {
+                List<NewsItem> newsItems = QueryUtils.extractResultsFromJson(mRecordedJson);
+                mSink = newsItems;
+                mChecksum += newsItems.size();
+            }
+        }) / mArticleCount;
+        assertWithinBudget("extractResultsFromJson per article", perArticle,
+                PARSE_BUDGET_PER_ARTICLE);
+    }
+
+    @Test
+    public void readFromStream_staysWithinBudget() {
+        long perArticle = measure(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    String json =
+                            QueryUtils.readFromStream(new ByteArrayInputStream(mRecordedBytes));
+                    mSink = json;
+                    mChecksum += json.length();
+                } catch (Exception e) {
+                    throw new AssertionError(e);
+                }
+            }
+        }) / mArticleCount;
+        assertWithinBudget("readFromStream per article", perArticle, READ_BUDGET_PER_ARTICLE);
+    }
+
+    /**
+     * With precomputed title and byline, the date is the only text getView formats; it only
+     * upper-cases the title when it can't use the precomputed one.
+     */
+    @Test
+    public void precomputedRowFormatting_staysWithinBudget() {
+        final List<NewsItem> newsItems = QueryUtils.extractResultsFromJson(mRecordedJson);
+        long perRow = measure(new Runnable() {
+            @Override
+            public void run() {
+                for (NewsItem newsItem : newsItems) {
+                    String date = NewsItemAdapter.parseAndFormatDate(
+                            newsItem.getPublicationDate());
+                    mSink = date;
+                    mChecksum += date.length();
+                }
+            }
+        }) / newsItems.size();
+        assertWithinBudget("precomputed row formatting per row", perRow,
+                PRECOMPUTED_ROW_BUDGET_PER_ROW);
+    }
+
+    /**
+     * Without precomputed text, getView also upper-cases the title itself.
+     */
+    @Test
+    public void fallbackRowFormatting_staysWithinBudget() {
+        final List<NewsItem> newsItems = QueryUtils.extractResultsFromJson(mRecordedJson);
+        long perRow = measure(new Runnable() {
+            @Override
+            public void run() {
+                for (NewsItem newsItem : newsItems) {
+                    String date = NewsItemAdapter.parseAndFormatDate(
+                            newsItem.getPublicationDate());
+                    String title = NewsItemTextPrecomputer.formatTitle(newsItem.getTitle());
+                    mSink = title;
+                    mChecksum += date.length() + title.length();
+                }
+            }
+        }) / newsItems.size();
+        assertWithinBudget("fallback row formatting per row", perRow,
+                FALLBACK_ROW_BUDGET_PER_ROW);
+    }
+
+    /**
+     * @return average bytes allocated on this thread by one run of the given code
+     */
+    private long measure(Runnable code) {
+        ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue("Thread allocation counters are not available on this JVM",
+                bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue(threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        for (int i = 0; i < WARM_UP_RUNS; i++) {
+            code.run();
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int i = 0; i < MEASURED_RUNS; i++) {
+            code.run();
+        }
+        long after = threadBean.getThreadAllocatedBytes(threadId);
+
+        // Check the results were really produced, which also keeps them alive
+        assertNotNull(mSink);
+        assertTrue(mChecksum > 0);
+        return (after - before) / MEASURED_RUNS;
+    }
+
+    private static void assertWithinBudget(String what, long bytes, long budget) {
+        assertTrue(what + " allocated " + bytes + " bytes, over the budget of " + budget,
+                bytes <= budget);
+    }
+}
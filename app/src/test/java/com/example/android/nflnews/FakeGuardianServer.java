@@ -0,0 +1,313 @@
+package com.example.android.nflnews;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Local stand-in for the Guardian content API. Replays the recorded search response and
+ * thumbnail bytes from src/test/resources/guardian so that {@link QueryUtils} and
+ * {@link NewsItemLoader} can be driven without touching the network.
+ *
+ * Latency, bandwidth, error rate and the number of available pages can all be configured
+ * before calling {@link #start()}.
+ *
+ * It can also be run on its own, for running the app offline against the recorded responses;
+ * see {@link #main(String[])} and the runFakeGuardianServer task in app/build.gradle.
+ */
+public class FakeGuardianServer {
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    /** Recorded thumbnail URLs in the fixture all live on the Guardian media host */
+    private static final Pattern THUMBNAIL_URL =
+            Pattern.compile("https://media\\.guim\\.co\\.uk/[^\"]+");
+    private static final Pattern CURRENT_PAGE = Pattern.compile("\"currentPage\": \\d+");
+    private static final Pattern PAGES = Pattern.compile("\"pages\": \\d+");
+    private static final Pattern TOTAL = Pattern.compile("\"total\": \\d+");
+    private static final Pattern PAGE_PARAM = Pattern.compile("(?:^|&)page=(\\d+)");
+
+    private static final String PAGE_OUT_OF_RANGE_JSON = "{\"response\":{\"status\":\"error\","
+            + "\"message\":\"requested page is beyond the number of available pages\"}}";
+    private static final String SERVER_ERROR_JSON = "{\"response\":{\"status\":\"error\","
+            + "\"message\":\"Internal server error\"}}";
+
+    private long mLatencyMillis = 0;
+    private long mBytesPerSecond = 0;
+    private double mErrorRate = 0.0;
+    private int mPageCount = 1;
+    private int mThreads = 8;
+    private long mSeed = 42L;
+    private int mPort = 0;
+    private String mAdvertisedHost = "127.0.0.1";
+
+    private HttpServer mServer;
+    private ExecutorService mExecutor;
+    private Random mRandom;
+    private String mRecordedResponse;
+    private byte[] mThumbnailBytes;
+    private byte[][] mPages;
+
+    private final AtomicInteger mSearchRequests = new AtomicInteger();
+    private final AtomicInteger mThumbnailRequests = new AtomicInteger();
+    private final AtomicInteger mErrorsServed = new AtomicInteger();
+
+    /** Fixed delay added before every response is written */
+    public void setLatencyMillis(long latencyMillis) {
+        mLatencyMillis = latencyMillis;
+    }
+
+    /** Throttles response bodies to the given rate; 0 means unlimited */
+    public void setBytesPerSecond(long bytesPerSecond) {
+        mBytesPerSecond = bytesPerSecond;
+    }
+
+    /** Fraction (0.0 - 1.0) of requests that are answered with an HTTP 500 */
+    public void setErrorRate(double errorRate) {
+        mErrorRate = errorRate;
+    }
+
+    /** Number of search pages available; later pages are answered with an HTTP 400 */
+    public void setPageCount(int pageCount) {
+        mPageCount = pageCount;
+    }
+
+    /** Number of threads serving requests */
+    public void setThreads(int threads) {
+        mThreads = threads;
+    }
+
+    /** Seed for the error injection, so a failing run can be repeated */
+    public void setSeed(long seed) {
+        mSeed = seed;
+    }
+
+    /** Port to listen on; 0 (the default) picks a free one */
+    public void setPort(int port) {
+        mPort = port;
+    }
+
+    /**
+     * Host that the app reaches this server by, used in the thumbnail URLs it serves, e.g.
+     * "10.0.2.2" from the emulator. Defaults to 127.0.0.1.
+     */
+    public void setAdvertisedHost(String advertisedHost) {
+        mAdvertisedHost = advertisedHost;
+    }
+
+    public void start() throws IOException {
+        mRecordedResponse = new String(readResource("guardian/search_response.json"), UTF_8);
+        mThumbnailBytes = readResource("guardian/thumbnail.png");
+        mRandom = new Random(mSeed);
+
+        mServer = HttpServer.create(new InetSocketAddress("127.0.0.1", mPort), 0);
+        mServer.createContext("/search", new SearchHandler());
+        mServer.createContext("/thumbnails/", new ThumbnailHandler());
+        mExecutor = Executors.newFixedThreadPool(mThreads);
+        mServer.setExecutor(mExecutor);
+
+        // Render every page up front so that serving a request costs no more than the
+        // configured latency and bandwidth.
+        mPages = new byte[mPageCount][];
+        for (int page = 1; page <= mPageCount; page++) {
+            mPages[page - 1] = renderPage(page).getBytes(UTF_8);
+        }
+
+        mServer.start();
+    }
+
+    public void stop() {
+        if (mServer != null) {
+            mServer.stop(0);
+            mServer = null;
+        }
+        if (mExecutor != null) {
+            mExecutor.shutdownNow();
+            mExecutor = null;
+        }
+    }
+
+    /**
+     * @return the base search URL, in the same form as GUARDIAN_REQUEST_URL in
+     * {@link MainActivity}, so query parameters can be appended directly.
+     */
+    public String getRequestUrl() {
+        return getRootUrl() + "search?";
+    }
+
+    public int getSearchRequestCount() {
+        return mSearchRequests.get();
+    }
+
+    public int getThumbnailRequestCount() {
+        return mThumbnailRequests.get();
+    }
+
+    public int getErrorsServedCount() {
+        return mErrorsServed.get();
+    }
+
+    private String getRootUrl() {
+        return "http://" + mAdvertisedHost + ":" + mServer.getAddress().getPort() + "/";
+    }
+
+    /**
+     * Rewrites the recorded response for the given page: page counters are updated and every
+     * thumbnail URL is pointed back at this server.
+     */
+    private String renderPage(int page) {
+        String body = mRecordedResponse;
+        body = CURRENT_PAGE.matcher(body).replaceFirst("\"currentPage\": " + page);
+        body = PAGES.matcher(body).replaceFirst("\"pages\": " + mPageCount);
+        body = TOTAL.matcher(body).replaceFirst("\"total\": " + mPageCount * 10);
+
+        Matcher matcher = THUMBNAIL_URL.matcher(body);
+        StringBuffer rewritten = new StringBuffer();
+        int index = 0;
+        while (matcher.find()) {
+            String url = getRootUrl() + "thumbnails/" + page + "-" + index++ + ".png";
+            matcher.appendReplacement(rewritten, Matcher.quoteReplacement(url));
+        }
+        matcher.appendTail(rewritten);
+        return rewritten.toString();
+    }
+
+    private boolean shouldFail() {
+        if (mErrorRate <= 0.0) {
+            return false;
+        }
+        synchronized (mRandom) {
+            return mRandom.nextDouble() < mErrorRate;
+        }
+    }
+
+    private void respond(HttpExchange exchange, int status, String contentType, byte[] body)
+            throws IOException {
+        try {
+            if (mLatencyMillis > 0) {
+                Thread.sleep(mLatencyMillis);
+            }
+            exchange.getResponseHeaders().set("Content-Type", contentType);
+            // A length of -1 tells HttpServer there is no body at all.
+            exchange.sendResponseHeaders(status, body.length == 0 ? -1 : body.length);
+            OutputStream out = exchange.getResponseBody();
+            writeThrottled(out, body);
+            out.close();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void writeThrottled(OutputStream out, byte[] body)
+            throws IOException, InterruptedException {
+        if (mBytesPerSecond <= 0) {
+            out.write(body);
+            return;
+        }
+        // Write in ~10ms worth of bytes at a time so throttling stays smooth.
+        int chunk = (int) Math.max(1, mBytesPerSecond / 100);
+        for (int offset = 0; offset < body.length; offset += chunk) {
+            int length = Math.min(chunk, body.length - offset);
+            out.write(body, offset, length);
+            out.flush();
+            Thread.sleep(length * 1000L / mBytesPerSecond);
+        }
+    }
+
+    private class SearchHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            mSearchRequests.incrementAndGet();
+            if (shouldFail()) {
+                mErrorsServed.incrementAndGet();
+                respond(exchange, 500, "application/json", SERVER_ERROR_JSON.getBytes(UTF_8));
+                return;
+            }
+
+            int page = 1;
+            String query = exchange.getRequestURI().getRawQuery();
+            if (query != null) {
+                Matcher matcher = PAGE_PARAM.matcher(query);
+                if (matcher.find()) {
+                    page = Integer.parseInt(matcher.group(1));
+                }
+            }
+
+            if (page < 1 || page > mPageCount) {
+                respond(exchange, 400, "application/json", PAGE_OUT_OF_RANGE_JSON.getBytes(UTF_8));
+            } else {
+                respond(exchange, 200, "application/json", mPages[page - 1]);
+            }
+        }
+    }
+
+    private class ThumbnailHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            mThumbnailRequests.incrementAndGet();
+            if (shouldFail()) {
+                mErrorsServed.incrementAndGet();
+                respond(exchange, 500, "text/plain", new byte[0]);
+                return;
+            }
+            respond(exchange, 200, "image/png", mThumbnailBytes);
+        }
+    }
+
+    /**
+     * Serves the recorded responses until the process is killed.
+     *
+     * @param args optional port (default 8080) and host the app reaches it by (default
+     *             10.0.2.2, the development machine as seen from the emulator)
+     */
+    public static void main(String[] args) throws IOException {
+        FakeGuardianServer server = new FakeGuardianServer();
+        server.setPort(args.length > 0 ? Integer.parseInt(args[0]) : 8080);
+        server.setAdvertisedHost(args.length > 1 ? args[1] : "10.0.2.2");
+        server.setPageCount(5);
+        server.start();
+        System.out.println("Serving recorded Guardian responses at " + server.getRequestUrl());
+    }
+
+    /**
+     * @return the news items of the recorded search response, parsed by {@link QueryUtils}
+     */
+    static List<NewsItem> readRecordedNewsItems() throws IOException {
+        return QueryUtils.extractResultsFromJson(
+                new String(readResource("guardian/search_response.json"), UTF_8));
+    }
+
+    static byte[] readResource(String name) throws IOException {
+        InputStream in = FakeGuardianServer.class.getClassLoader().getResourceAsStream(name);
+        if (in == null) {
+            throw new IOException("Missing test resource " + name);
+        }
+        try {
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            int read;
+            while ((read = in.read(buffer)) != -1) {
+                out.write(buffer, 0, read);
+            }
+            return out.toByteArray();
+        } finally {
+            in.close();
+        }
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.android.nflnews;
+
+/**
+ * {@link RequestCancellation} that a test cancels by hand, with the same behaviour as the
+ * framework CancellationSignal the loader adapts in the app.
+ */
+public class FakeRequestCancellation implements RequestCancellation {
+
+    private boolean mIsCanceled;
+    private OnCancelListener mOnCancelListener;
+
+    @Override
+    public synchronized boolean isCanceled() {
+        return mIsCanceled;
+    }
+
+    public void cancel() {
+        OnCancelListener listener;
+        synchronized (this) {
+            if (mIsCanceled) {
+                return;
+            }
+            mIsCanceled = true;
+            listener = mOnCancelListener;
+        }
+        if (listener != null) {
+            listener.onCancel();
+        }
+    }
+
+    @Override
+    public void setOnCancelListener(OnCancelListener listener) {
+        synchronized (this) {
+            mOnCancelListener = listener;
+            if (!mIsCanceled || listener == null) {
+                return;
+            }
+        }
+        listener.onCancel();
+    }
+}
@@ -0,0 +1,198 @@
+package com.example.android.nflnews;
+
+import android.os.OperationCanceledException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * End-to-end tests of the fetch and parse path against {@link FakeGuardianServer}. These run
+ * fully offline on the development machine (host).
+ */
+public class GuardianLoadRegressionTest {
+
+    private static final String QUERY = "section=sport&tag=sport/us-sport"
+            + "&show-fields=byline,thumbnail,productionOffice&page-size=10";
+
+    private FakeGuardianServer mServer;
+
+    @Before
+    public void setUp() {
+        mServer = new FakeGuardianServer();
+    }
+
+    @After
+    public void tearDown() {
+        mServer.stop();
+    }
+
+    @Test
+    public void fetchNewsItemData_parsesRecordedPage() throws Exception {
+        mServer.start();
+
+        List<NewsItem> newsItems =
+                QueryUtils.fetchNewsItemData(mServer.getRequestUrl() + QUERY + "&page=1");
+
+        assertEquals(10, newsItems.size());
+        NewsItem first = newsItems.get(0);
+        assertEquals("Chiefs and Rams set for Monday night shootout in Los Angeles",
+                first.getTitle());
+        assertEquals("Bryan Armen Graham", first.getByline());
+        assertEquals("2018-11-18T14:00:12Z", first.getPublicationDate());
+        assertEquals("Sport", first.getSectionName());
+        assertEquals("US", first.getProductionOffice());
+        assertTrue(first.getImageUrl().startsWith(mServer.getRequestUrl().replace("search?", "")));
+    }
+
+    /**
+     * A failed request gives no news items. On a device that is null, because the empty
+     * response stops at TextUtils.isEmpty(); with the stubbed android.jar the parser runs and
+     * gives an empty list. Either way the app must show nothing and not crash.
+     */
+    private static void assertNoNewsItems(List<NewsItem> newsItems) {
+        assertTrue("Expected no news items, got " + newsItems,
+                newsItems == null || newsItems.isEmpty());
+    }
+
+    @Test
+    public void fetchNewsItemData_serverErrorGivesNoNewsItems() throws Exception {
+        mServer.setErrorRate(1.0);
+        mServer.start();
+
+        List<NewsItem> newsItems =
+                QueryUtils.fetchNewsItemData(mServer.getRequestUrl() + QUERY + "&page=1");
+
+        assertNoNewsItems(newsItems);
+        assertEquals(1, mServer.getErrorsServedCount());
+    }
+
+    @Test
+    public void fetchNewsItemData_pageBeyondLastGivesNoNewsItems() throws Exception {
+        mServer.setPageCount(2);
+        mServer.start();
+
+        List<NewsItem> newsItems =
+                QueryUtils.fetchNewsItemData(mServer.getRequestUrl() + QUERY + "&page=3");
+
+        assertNoNewsItems(newsItems);
+    }
+
+    @Test
+    public void fetchNewsItemData_cancelDropsConnectionMidRequest() throws Exception {
+        mServer.setLatencyMillis(5000);
+        mServer.start();
+
+        final FakeRequestCancellation cancellation = new FakeRequestCancellation();
+        final Throwable[] thrown = new Throwable[1];
+        Thread request = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    QueryUtils.fetchNewsItemData(mServer.getRequestUrl() + QUERY + "&page=1",
+                            cancellation);
+                } catch (Throwable t) {
+                    thrown[0] = t;
+                }
+            }
+        });
+
+        long start = System.nanoTime();
+        request.start();
+        // Wait until the request is on the server, then cancel while it waits for a response
+        while (mServer.getSearchRequestCount() == 0) {
+            Thread.sleep(10);
+        }
+        cancellation.cancel();
+        request.join(5000);
+        long elapsedMillis = (System.nanoTime() - start) / 1000000;
+
+        assertFalse("Request still running after cancel", request.isAlive());
+        assertTrue("Expected OperationCanceledException, got " + thrown[0],
+                thrown[0] instanceof OperationCanceledException);
+        // Only a dropped connection returns before the server's 5 second latency is up
+        assertTrue("Request took " + elapsedMillis + " ms", elapsedMillis < 2000);
+    }
+
+    /**
+     * The LoaderManager starts the loader again every time the activity starts, e.g. after a
+     * trip to the settings screen to change the country. That must not make a new request.
+     */
+    @Test
+    public void loader_restartedAfterDeliveryMakesNoRequest() throws Exception {
+        mServer.start();
+        final int[] forceLoads = new int[1];
+        final String url = mServer.getRequestUrl() + QUERY + "&page=1";
+        NewsItemLoader loader = new NewsItemLoader(null, url) {
+            @Override
+            public void forceLoad() {
+                // Load synchronously, as AsyncTaskLoader would on its background thread
+                forceLoads[0]++;
+                deliverResult(loadInBackground());
+            }
+        };
+
+        loader.onStartLoading();
+        loader.onStopLoading();
+        loader.onStartLoading();
+
+        assertEquals(1, forceLoads[0]);
+        assertEquals(1, mServer.getSearchRequestCount());
+
+        // Once reset, the loader has nothing to hand back and loads again
+        loader.onReset();
+        loader.onStartLoading();
+
+        assertEquals(2, forceLoads[0]);
+        assertEquals(2, mServer.getSearchRequestCount());
+    }
+
+    @Test
+    public void scriptedSessions_reportThroughputAndLatency() throws Exception {
+        mServer.setPageCount(5);
+        mServer.setLatencyMillis(20);
+        mServer.setBytesPerSecond(4 * 1024 * 1024);
+        mServer.start();
+
+        List<LoadHarness.Session> sessions = new ArrayList<>();
+        for (int page = 1; page <= 5; page++) {
+            sessions.add(new LoadHarness.Session().loadPage(1).loadPage(page).loadThumbnails());
+        }
+
+        LoadHarness.Report report =
+                new LoadHarness(mServer.getRequestUrl(), QUERY).run(sessions, 4, 4);
+        System.out.print(report);
+
+        assertEquals(40, report.getOperations(LoadHarness.Action.LOAD_PAGE));
+        assertEquals(0, report.getFailures(LoadHarness.Action.LOAD_PAGE));
+        assertEquals(0, report.getFailures(LoadHarness.Action.LOAD_THUMBNAILS));
+        assertEquals(400, report.getArticles());
+        assertEquals(200, mServer.getThumbnailRequestCount());
+        assertTrue(report.getLatencyMillis(LoadHarness.Action.LOAD_PAGE, 50) >= 20);
+    }
+
+    @Test
+    public void scriptedSessions_countFailuresUnderErrorInjection() throws Exception {
+        mServer.setPageCount(3);
+        mServer.setErrorRate(0.3);
+        mServer.start();
+
+        List<LoadHarness.Session> sessions = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            sessions.add(new LoadHarness.Session().loadPage(1).loadPage(2).loadPage(3));
+        }
+
+        LoadHarness.Report report =
+                new LoadHarness(mServer.getRequestUrl(), QUERY).run(sessions, 4, 1);
+        System.out.print(report);
+
+        assertEquals(30, report.getOperations(LoadHarness.Action.LOAD_PAGE));
+        assertEquals(mServer.getErrorsServedCount(),
+                report.getFailures(LoadHarness.Action.LOAD_PAGE));
+    }
+}
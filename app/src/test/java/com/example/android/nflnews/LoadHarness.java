@@ -0,0 +1,207 @@
+package com.example.android.nflnews;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Drives {@link NewsItemLoader} (and through it {@link QueryUtils}) through scripted user
+ * sessions against a search URL, usually the one from {@link FakeGuardianServer}, and reports
+ * throughput and latency percentiles for each kind of step.
+ */
+public class LoadHarness {
+
+    public enum Action {
+        /** Run a NewsItemLoader for one page of search results */
+        LOAD_PAGE,
+        /** Download every thumbnail of the last loaded page, as ImageLoaderTask would */
+        LOAD_THUMBNAILS
+    }
+
+    /**
+     * A scripted user session, e.g. "open the app, scroll to page 2, look at the images".
+     */
+    public static class Session {
+        private final List<Action> mActions = new ArrayList<>();
+        private final List<Integer> mPages = new ArrayList<>();
+
+        public Session loadPage(int page) {
+            mActions.add(Action.LOAD_PAGE);
+            mPages.add(page);
+            return this;
+        }
+
+        public Session loadThumbnails() {
+            mActions.add(Action.LOAD_THUMBNAILS);
+            mPages.add(0);
+            return this;
+        }
+    }
+
+    /** Search URL with every query parameter except the page number */
+    private final String mQueryUrl;
+
+    /**
+     * @param requestUrl base search URL, in the same form as GUARDIAN_REQUEST_URL
+     * @param query query parameters to send with every page request, without a leading "?"
+     */
+    public LoadHarness(String requestUrl, String query) {
+        mQueryUrl = requestUrl + query;
+    }
+
+    /**
+     * Runs every session {@code repetitions} times on {@code concurrency} threads and returns
+     * the combined report.
+     */
+    public Report run(List<Session> sessions, int concurrency, int repetitions) throws Exception {
+        final Report report = new Report();
+        ExecutorService executor = Executors.newFixedThreadPool(concurrency);
+        List<Future<?>> futures = new ArrayList<>();
+
+        long start = System.nanoTime();
+        for (int r = 0; r < repetitions; r++) {
+            for (final Session session : sessions) {
+                futures.add(executor.submit(new Runnable() {
+                    @Override
+                    public void run() {
+                        runSession(session, report);
+                    }
+                }));
+            }
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+        report.mWallNanos = System.nanoTime() - start;
+        executor.shutdown();
+        return report;
+    }
+
+    private void runSession(Session session, Report report) {
+        List<NewsItem> lastPage = Collections.emptyList();
+        for (int i = 0; i < session.mActions.size(); i++) {
+            Action action = session.mActions.get(i);
+            long start = System.nanoTime();
+            boolean ok;
+            int articles = 0;
+            if (action == Action.LOAD_PAGE) {
+                String url = mQueryUrl + "&page=" + session.mPages.get(i);
+                List<NewsItem> newsItems = new NewsItemLoader(null, url).loadInBackground();
+                ok = newsItems != null && !newsItems.isEmpty();
+                if (ok) {
+                    lastPage = newsItems;
+                    articles = newsItems.size();
+                }
+            } else {
+                ok = loadThumbnails(lastPage);
+            }
+            report.record(action, System.nanoTime() - start, ok, articles);
+        }
+    }
+
+    private static boolean loadThumbnails(List<NewsItem> newsItems) {
+        boolean ok = true;
+        byte[] buffer = new byte[8192];
+        for (NewsItem newsItem : newsItems) {
+            try {
+                InputStream in = new URL(newsItem.getImageUrl()).openStream();
+                try {
+                    while (in.read(buffer) != -1) {
+                        // Drain the stream; decoding is not part of what we measure here.
+                    }
+                } finally {
+                    in.close();
+                }
+            } catch (IOException e) {
+                ok = false;
+            }
+        }
+        return ok;
+    }
+
+    /**
+     * Latency and throughput results of a {@link #run} call.
+     */
+    public static class Report {
+        private final List<Long>[] mLatencies;
+        private final int[] mFailures;
+        private int mArticles;
+        private long mWallNanos;
+
+        @SuppressWarnings("unchecked")
+        Report() {
+            int actions = Action.values().length;
+            mLatencies = new List[actions];
+            for (int i = 0; i < actions; i++) {
+                mLatencies[i] = new ArrayList<>();
+            }
+            mFailures = new int[actions];
+        }
+
+        synchronized void record(Action action, long nanos, boolean ok, int articles) {
+            mLatencies[action.ordinal()].add(nanos);
+            if (!ok) {
+                mFailures[action.ordinal()]++;
+            }
+            mArticles += articles;
+        }
+
+        public synchronized int getOperations(Action action) {
+            return mLatencies[action.ordinal()].size();
+        }
+
+        public synchronized int getFailures(Action action) {
+            return mFailures[action.ordinal()];
+        }
+
+        public synchronized int getArticles() {
+            return mArticles;
+        }
+
+        /** @return operations per second across the whole run for the given action */
+        public synchronized double getThroughput(Action action) {
+            return getOperations(action) / (mWallNanos / 1e9);
+        }
+
+        /**
+         * @param percentile between 0 and 100
+         * @return latency in milliseconds at the given percentile, using the nearest-rank method
+         */
+        public synchronized double getLatencyMillis(Action action, double percentile) {
+            List<Long> sorted = new ArrayList<>(mLatencies[action.ordinal()]);
+            if (sorted.isEmpty()) {
+                return 0;
+            }
+            Collections.sort(sorted);
+            int rank = (int) Math.ceil(percentile / 100.0 * sorted.size());
+            return sorted.get(Math.max(0, rank - 1)) / 1e6;
+        }
+
+        @Override
+        public synchronized String toString() {
+            StringBuilder output = new StringBuilder();
+            output.append(String.format(Locale.US, "wall %.1f ms, %d articles parsed%n",
+                    mWallNanos / 1e6, mArticles));
+            for (Action action : Action.values()) {
+                if (getOperations(action) == 0) {
+                    continue;
+                }
+                output.append(String.format(Locale.US,
+                        "%-16s ops %5d  fail %4d  %8.1f ops/s  p50 %7.2f  p90 %7.2f  p99 %7.2f"
+                                + "  max %7.2f ms%n",
+                        action, getOperations(action), getFailures(action),
+                        getThroughput(action), getLatencyMillis(action, 50),
+                        getLatencyMillis(action, 90), getLatencyMillis(action, 99),
+                        getLatencyMillis(action, 100)));
+            }
+            return output.toString();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.android.nflnews;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class NewsItemOfficeIndexTest {
+
+    /** Value of settings_country_origin_all_value */
+    private static final String ALL_OFFICES = "all";
+
+    /** Recorded feed: 5 news items from the US office, 4 from UK and 1 from AUS */
+    private List<NewsItem> mRecordedNewsItems;
+
+    @Before
+    public void setUp() throws Exception {
+        mRecordedNewsItems = FakeGuardianServer.readRecordedNewsItems();
+    }
+
+    @Test
+    public void get_filtersByOfficeInFeedOrder() {
+        NewsItemOfficeIndex index = new NewsItemOfficeIndex(mRecordedNewsItems, ALL_OFFICES);
+
+        List<NewsItem> uk = index.get("uk");
+        assertEquals(4, uk.size());
+        assertSame(mRecordedNewsItems.get(1), uk.get(0));
+        assertSame(mRecordedNewsItems.get(5), uk.get(1));
+        assertEquals(5, index.get("us").size());
+        assertEquals(1, index.get("aus").size());
+        assertEquals(10, index.get(ALL_OFFICES).size());
+    }
+
+    @Test
+    public void get_unknownOfficeIsEmpty() {
+        NewsItemOfficeIndex index = new NewsItemOfficeIndex(mRecordedNewsItems, ALL_OFFICES);
+
+        assertTrue(index.get("nz").isEmpty());
+    }
+
+    @Test
+    public void isTooShallow_onlyWhenFeedWasTruncated() {
+        NewsItemOfficeIndex index = new NewsItemOfficeIndex(mRecordedNewsItems, ALL_OFFICES);
+
+        // The feed asked for 10 and got 10, so there may be more AUS news items out there
+        assertTrue(index.isTooShallow("aus", 2, 10));
+        // The feed asked for 50 and got 10, so it is everything there is
+        assertFalse(index.isTooShallow("aus", 2, 50));
+        assertFalse(index.isTooShallow("us", 2, 10));
+        assertFalse(index.isTooShallow(ALL_OFFICES, 20, 10));
+    }
+
+    @Test
+    public void putOffice_replacesOfficeAndIsNoLongerShallow() {
+        NewsItemOfficeIndex index = new NewsItemOfficeIndex(mRecordedNewsItems, ALL_OFFICES);
+        List<NewsItem> aus = new ArrayList<>(index.get("uk"));
+
+        index.putOffice("aus", aus);
+
+        assertSame(aus, index.get("aus"));
+        assertFalse(index.isTooShallow("aus", 2, 10));
+    }
+
+    @Test
+    public void isIndexOf_onlyTheListItWasBuiltFrom() {
+        NewsItemOfficeIndex index = new NewsItemOfficeIndex(mRecordedNewsItems, ALL_OFFICES);
+
+        assertTrue(index.isIndexOf(mRecordedNewsItems));
+        assertFalse(index.isIndexOf(new ArrayList<>(mRecordedNewsItems)));
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.android.nflnews;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class SearchResultCacheTest {
+
+    private static final String FILTER = "sport/us-sport";
+
+    private List<NewsItem> mRecordedNewsItems;
+
+    @Before
+    public void setUp() throws Exception {
+        mRecordedNewsItems = FakeGuardianServer.readRecordedNewsItems();
+    }
+
+    @Test
+    public void normalize_trimsAndLowerCases() {
+        assertEquals("brady", SearchResultCache.normalize("  Brady "));
+        assertEquals("", SearchResultCache.normalize(null));
+    }
+
+    @Test
+    public void get_isKeyedByFilterAndQuery() {
+        SearchResultCache cache = new SearchResultCache(4);
+        cache.put(FILTER, "brady", mRecordedNewsItems);
+
+        assertSame(mRecordedNewsItems, cache.get(FILTER, "brady"));
+        assertNull(cache.get("sport/nba", "brady"));
+        assertNull(cache.get(FILTER, "bradys"));
+    }
+
+    @Test
+    public void findPrefixMatches_filtersLongestCachedPrefixLocally() {
+        SearchResultCache cache = new SearchResultCache(4);
+        cache.put(FILTER, "", mRecordedNewsItems);
+        cache.put(FILTER, "bra", SearchResultCache.filterByTitle(mRecordedNewsItems, "bra"));
+
+        List<NewsItem> matches = cache.findPrefixMatches(FILTER, "brady");
+        assertEquals(1, matches.size());
+        assertTrue(matches.get(0).getTitle().startsWith("Tom Brady and the Patriots"));
+
+        // Falls back to the unfiltered feed, cached under the empty query, and needs every word
+        matches = cache.findPrefixMatches(FILTER, "lakers lebron");
+        assertEquals(1, matches.size());
+        assertTrue(matches.get(0).getTitle().startsWith("LeBron James"));
+    }
+
+    @Test
+    public void findPrefixMatches_returnsNullWithoutCachedPrefix() {
+        SearchResultCache cache = new SearchResultCache(4);
+        cache.put(FILTER, "rams", mRecordedNewsItems);
+
+        assertNull(cache.findPrefixMatches(FILTER, "brady"));
+    }
+
+    @Test
+    public void put_evictsLeastRecentlyUsedQuery() {
+        SearchResultCache cache = new SearchResultCache(2);
+        cache.put(FILTER, "a", new ArrayList<NewsItem>());
+        cache.put(FILTER, "b", new ArrayList<NewsItem>());
+        cache.get(FILTER, "a");
+        cache.put(FILTER, "c", new ArrayList<NewsItem>());
+
+        assertNotNull(cache.get(FILTER, "a"));
+        assertNull(cache.get(FILTER, "b"));
+        assertNotNull(cache.get(FILTER, "c"));
+    }
+}